@@ -0,0 +1,237 @@
+package lee;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * compares three ways of collecting orders appended by many threads while reductions
+ * run over them: the lock-free `OrderLog`, a synchronized `ArrayList` and a
+ * `ConcurrentLinkedQueue`. One writer per processor appends its share of the orders,
+ * and meanwhile the main thread repeatedly takes a snapshot and sums the prices per
+ * user with a parallel stream, like `sumOrderParallelStream` in `ReductionTest`. The
+ * synchronized list is copied under its lock; the queue is copied through its weakly
+ * consistent iterator, since streaming it directly splits poorly and may see orders
+ * appended during the reduction. The test reports the append throughput and the
+ * average snapshot-reduction latency, together with the time per reduced order since
+ * every snapshot holds however many orders were published when it was taken, and
+ * checks that all three reach the same totals once the writers are done. The writers,
+ * the main thread and the common-pool workers of the parallel reductions all share
+ * the processors, so the append throughput depends on the reductions running
+ * alongside it.
+ */
+public class ConcurrentAppendTest {
+
+	/**
+	 * calls the `doTest()` method, which runs the benchmark.
+	 *
+	 * @param args command line arguments, not used.
+	 *
+	 * @throws InterruptedException if the main thread is interrupted while waiting for
+	 * the writers.
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		new ConcurrentAppendTest().doTest();
+	}
+	/**
+	 * generates orders of increasing length, splits them between the writers and runs
+	 * the append and reduction test on each of the three containers.
+	 *
+	 * @throws InterruptedException if the main thread is interrupted while waiting for
+	 * the writers.
+	 */
+	public void doTest() throws InterruptedException {
+		int writers = Runtime.getRuntime().availableProcessors();
+		warmUp(writers);
+		int[] lengths = {
+				100000,
+				1000000,
+				10000000,
+				20000000
+			};
+		for(int length : lengths){
+			System.out.println(String.format("---orders length: %d, writers: %d---", length, writers));
+			List<List<Order>> parts = genParts(length, writers);
+
+			OrderLog log = new OrderLog();
+			Map<String, Double> map1 = appendAndReduce("OrderLog", parts, log::append,
+					() -> log.snapshot().spliterator());
+
+			List<Order> list = Collections.synchronizedList(new ArrayList<>());
+			Map<String, Double> map2 = appendAndReduce("synchronized ArrayList", parts, list::add,
+					() -> snapshot(list).spliterator());
+
+			ConcurrentLinkedQueue<Order> queue = new ConcurrentLinkedQueue<>();
+			Map<String, Double> map3 = appendAndReduce("ConcurrentLinkedQueue", parts, queue::add,
+					() -> new ArrayList<>(queue).spliterator());
+
+			System.out.println(map1.equals(map2) && map2.equals(map3));
+		}
+	}
+	/**
+	 * runs the test a few hundred times on small inputs so that the append and
+	 * reduction paths are compiled before measuring. Starting threads is expensive, so
+	 * this uses fewer rounds than the `warmUp()` methods of the other benchmarks.
+	 *
+	 * @param writers number of writer threads.
+	 *
+	 * @throws InterruptedException if the main thread is interrupted while waiting for
+	 * the writers.
+	 */
+	private void warmUp(int writers) throws InterruptedException {
+		List<List<Order>> parts = genParts(1000*writers, writers);
+		for(int i=0; i<200; i++){
+			OrderLog log = new OrderLog();
+			runWriters(parts, log::append, () -> log.snapshot().spliterator());
+			List<Order> list = Collections.synchronizedList(new ArrayList<>());
+			runWriters(parts, list::add, () -> snapshot(list).spliterator());
+			ConcurrentLinkedQueue<Order> queue = new ConcurrentLinkedQueue<>();
+			runWriters(parts, queue::add, () -> new ArrayList<>(queue).spliterator());
+		}
+	}
+	/**
+	 * appends all parts concurrently, measures the reductions taken meanwhile, prints the
+	 * results and finally reduces over the complete container.
+	 *
+	 * @param name name of the container, used in the output.
+	 *
+	 * @param parts orders to append, one list per writer thread.
+	 *
+	 * @param append appends a single order to the container.
+	 *
+	 * @param snapshot takes a snapshot of the container as a sized spliterator.
+	 *
+	 * @returns a map of user names to the total price of all their appended orders.
+	 *
+	 * @throws InterruptedException if the main thread is interrupted while waiting for
+	 * the writers.
+	 */
+	private Map<String, Double> appendAndReduce(String name, List<List<Order>> parts,
+			Consumer<Order> append, Supplier<Spliterator<Order>> snapshot) throws InterruptedException {
+		int orders = 0;
+		for(List<Order> part : parts){
+			orders += part.size();
+		}
+		long startTime = System.nanoTime();
+		long[] reductions = runWriters(parts, append, snapshot);
+		long ns = System.nanoTime()-startTime;
+		System.out.println(String.format("%s append time: %.2f ms, %.2f M orders/s",
+				name, ns/1000000.0, orders*1000.0/ns));
+		if(reductions[0] > 0){
+			System.out.println(String.format(
+					"%s snapshot reduction avg of %d = %.2f us, avg orders = %d, %.2f ns/order",
+					name, reductions[0], reductions[1]/1000.0/reductions[0],
+					reductions[2]/reductions[0], reductions[2] == 0 ? 0.0 : (double)reductions[1]/reductions[2]));
+		}else{
+			System.out.println(name + " snapshot reduction: none finished during appends");
+		}
+		startTime = System.nanoTime();
+		Map<String, Double> map = sumOrderParallelStream(snapshot.get());
+		TimeUtil.outTimeUs(startTime, name + " final reduction time:");
+		return map;
+	}
+	/**
+	 * starts one writer thread per part and, until all writers are done, repeatedly runs
+	 * the reduction on the main thread.
+	 *
+	 * @param parts orders to append, one list per writer thread.
+	 *
+	 * @param append appends a single order to the container.
+	 *
+	 * @param snapshot takes a snapshot of the container as a sized spliterator.
+	 *
+	 * @returns a three-element array with the number of reductions that finished while
+	 * the writers were running, their total time in nanoseconds and the total number of
+	 * orders they reduced.
+	 *
+	 * @throws InterruptedException if the main thread is interrupted while waiting for
+	 * the writers.
+	 */
+	private long[] runWriters(List<List<Order>> parts, Consumer<Order> append,
+			Supplier<Spliterator<Order>> snapshot) throws InterruptedException {
+		CountDownLatch start = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(parts.size());
+		for(List<Order> part : parts){
+			new Thread(() -> {
+				try{
+					start.await();
+					for(Order od : part){
+						append.accept(od);
+					}
+				}catch(InterruptedException e){
+					Thread.currentThread().interrupt();
+				}finally{
+					done.countDown();
+				}
+			}).start();
+		}
+		start.countDown();
+		long count = 0;
+		long totalNs = 0;
+		long totalOrders = 0;
+		while(done.getCount() > 0){
+			long startTime = System.nanoTime();
+			Spliterator<Order> orders = snapshot.get();
+			long size = orders.getExactSizeIfKnown();
+			sumOrderParallelStream(orders);
+			long ns = System.nanoTime()-startTime;
+			if(done.getCount() > 0){
+				count++;
+				totalNs += ns;
+				totalOrders += size;
+			}
+		}
+		done.await();
+		return new long[]{count, totalNs, totalOrders};
+	}
+	/**
+	 * copies a synchronized list while holding its lock, which blocks all writers for
+	 * the duration of the copy.
+	 *
+	 * @param list synchronized list to copy.
+	 *
+	 * @returns a private copy of the list.
+	 */
+	private List<Order> snapshot(List<Order> list){
+		synchronized(list){
+			return new ArrayList<>(list);
+		}
+	}
+	/**
+	 * sums the prices of a snapshot per user with a parallel stream, the same reduction
+	 * as `ReductionTest.sumOrderParallelStream`.
+	 *
+	 * @param orders spliterator over the snapshot to reduce.
+	 *
+	 * @returns a map of user names to the total price of their orders.
+	 */
+	private Map<String, Double> sumOrderParallelStream(Spliterator<Order> orders){
+		return StreamSupport.stream(orders, true).collect(
+				Collectors.groupingBy(Order::getUserName,
+						Collectors.summingDouble(Order::getPrice)));
+	}
+	/**
+	 * generates the orders of every writer.
+	 *
+	 * @param length total number of orders.
+	 *
+	 * @param writers number of writer threads.
+	 *
+	 * @returns one list of orders per writer, together holding `length` orders.
+	 */
+	private List<List<Order>> genParts(int length, int writers){
+		List<List<Order>> parts = new ArrayList<>(writers);
+		for(int i=0; i<writers; i++){
+			parts.add(Order.genOrders(length/writers + (i < length%writers ? 1 : 0)));
+		}
+		return parts;
+	}
+}
@@ -122,7 +122,7 @@ public class IntTest {
 	 * 
 	 * @returns the minimum integer value in the input array.
 	 */
-	private int minIntStream(int[] arr){
+	int minIntStream(int[] arr){
 		return Arrays.stream(arr).min().getAsInt();
 	}
 	/**
@@ -155,7 +155,7 @@ public class IntTest {
 	 * 	- Each element in the array is accessed through its index, which ranges from 0
 	 * to the length of the array - 1.
 	 */
-	private void randomInt(int[] arr){
+	void randomInt(int[] arr){
 		Random r = new Random();
 		for(int i=0; i<arr.length; i++){
 			arr[i] = r.nextInt();
@@ -0,0 +1,199 @@
+package lee;
+
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * is a lock-free, append-only log of `Order` objects that many threads can append to
+ * while others reduce over it. Orders are stored in fixed-size chunks that are created
+ * on demand. A writer claims the next slot with a CAS on the tail index and then
+ * publishes its order into that slot, so writers never wait for each other. Readers
+ * call `snapshot()` to get the longest prefix of the log in which every slot has been
+ * published; that prefix never changes afterwards and can be streamed in parallel.
+ */
+public class OrderLog {
+	private static final int CHUNK_SHIFT = 14;
+	private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE-1;
+	private static final int MAX_CHUNKS = 1 << 16;
+	private static final int CAPACITY = MAX_CHUNKS << CHUNK_SHIFT;
+
+	private final AtomicReferenceArray<AtomicReferenceArray<Order>> chunks =
+			new AtomicReferenceArray<>(MAX_CHUNKS);
+	private final AtomicInteger tail = new AtomicInteger();
+	private final AtomicInteger published = new AtomicInteger();
+
+	/**
+	 * appends an order to the end of the log. The slot is claimed with a CAS on the
+	 * tail index; if the chunk of that slot does not exist yet, the writer installs it
+	 * with a CAS as well, so no lock is taken.
+	 *
+	 * @param order order to append, not null.
+	 *
+	 * @throws IllegalStateException if the log already holds `CAPACITY` orders.
+	 */
+	public void append(Order order){
+		Objects.requireNonNull(order);
+		int slot;
+		do{
+			slot = tail.get();
+			if(slot == CAPACITY)
+				throw new IllegalStateException("order log is full");
+		}while(!tail.compareAndSet(slot, slot+1));
+		chunk(slot >>> CHUNK_SHIFT).set(slot & CHUNK_MASK, order);
+	}
+	/**
+	 * takes a consistent snapshot of the log: the longest prefix whose slots are all
+	 * published. Slots claimed by writers that have not stored their order yet end the
+	 * prefix. The published watermark is shared between readers, so every snapshot
+	 * only checks the slots appended since the last one.
+	 *
+	 * @returns an immutable `Snapshot` of the published prefix of the log.
+	 */
+	public Snapshot snapshot(){
+		int claimed = tail.get();
+		int n = published.get();
+		while(n < claimed){
+			AtomicReferenceArray<Order> chunk = chunks.get(n >>> CHUNK_SHIFT);
+			if(chunk == null || chunk.get(n & CHUNK_MASK) == null)
+				break;
+			n++;
+		}
+		int p = published.get();
+		while(p < n && !published.compareAndSet(p, n)){
+			p = published.get();
+		}
+		return new Snapshot(Math.max(n, p));
+	}
+	/**
+	 * returns the chunk with the given index, installing a new chunk if no writer has
+	 * done so yet.
+	 *
+	 * @param index index of the chunk.
+	 *
+	 * @returns the chunk holding slots `index*CHUNK_SIZE` to `(index+1)*CHUNK_SIZE-1`.
+	 */
+	private AtomicReferenceArray<Order> chunk(int index){
+		AtomicReferenceArray<Order> chunk = chunks.get(index);
+		if(chunk == null){
+			chunk = new AtomicReferenceArray<>(CHUNK_SIZE);
+			if(!chunks.compareAndSet(index, null, chunk))
+				chunk = chunks.get(index);
+		}
+		return chunk;
+	}
+
+	/**
+	 * is a fixed prefix of an `OrderLog`. Appends made after the snapshot was taken are
+	 * not visible through it.
+	 */
+	public class Snapshot {
+		private final int size;
+
+		private Snapshot(int size) {
+			this.size = size;
+		}
+		/**
+		 * returns the number of orders in the snapshot.
+		 *
+		 * @returns the length of the snapshot prefix.
+		 */
+		public int size(){
+			return size;
+		}
+		/**
+		 * returns the order at a position of the snapshot.
+		 *
+		 * @param index position of the order, from 0 to `size()-1`.
+		 *
+		 * @returns the order appended at that position.
+		 */
+		public Order get(int index){
+			if(index < 0 || index >= size)
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+			return chunks.get(index >>> CHUNK_SHIFT).get(index & CHUNK_MASK);
+		}
+		/**
+		 * returns a sized, splittable spliterator over the orders of the snapshot.
+		 *
+		 * @returns a `Spliterator` covering the whole snapshot.
+		 */
+		public Spliterator<Order> spliterator(){
+			return new OrderSpliterator(0, size);
+		}
+		/**
+		 * returns a sequential stream over the orders of the snapshot.
+		 *
+		 * @returns a `Stream` of the orders in append order.
+		 */
+		public Stream<Order> stream(){
+			return StreamSupport.stream(spliterator(), false);
+		}
+		/**
+		 * returns a parallel stream over the orders of the snapshot.
+		 *
+		 * @returns a parallel `Stream` of the orders of the snapshot.
+		 */
+		public Stream<Order> parallelStream(){
+			return StreamSupport.stream(spliterator(), true);
+		}
+	}
+
+	/**
+	 * iterates over the slots `[index, end)` of the log. Splitting halves the range,
+	 * rounded down to a chunk boundary when one lies inside the range.
+	 */
+	private class OrderSpliterator implements Spliterator<Order> {
+		private int index;
+		private final int end;
+
+		OrderSpliterator(int index, int end) {
+			this.index = index;
+			this.end = end;
+		}
+		@Override
+		public boolean tryAdvance(Consumer<? super Order> action){
+			if(index >= end)
+				return false;
+			int i = index++;
+			action.accept(chunks.get(i >>> CHUNK_SHIFT).get(i & CHUNK_MASK));
+			return true;
+		}
+		@Override
+		public void forEachRemaining(Consumer<? super Order> action){
+			int i = index;
+			index = end;
+			while(i < end){
+				AtomicReferenceArray<Order> chunk = chunks.get(i >>> CHUNK_SHIFT);
+				int chunkEnd = Math.min(end, (i & ~CHUNK_MASK) + CHUNK_SIZE);
+				for(; i<chunkEnd; i++){
+					action.accept(chunk.get(i & CHUNK_MASK));
+				}
+			}
+		}
+		@Override
+		public Spliterator<Order> trySplit(){
+			int mid = (index+end) >>> 1;
+			if((mid & ~CHUNK_MASK) > index)
+				mid &= ~CHUNK_MASK;
+			if(mid <= index)
+				return null;
+			OrderSpliterator prefix = new OrderSpliterator(index, mid);
+			index = mid;
+			return prefix;
+		}
+		@Override
+		public long estimateSize(){
+			return end-index;
+		}
+		@Override
+		public int characteristics(){
+			return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+		}
+	}
+}
@@ -0,0 +1,253 @@
+package lee;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.DoubleConsumer;
+import java.util.stream.DoubleStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * is a lazy, pull-based query over an `OrderStore`. Predicates added with `where()`
+ * only describe the query; rows are read when a terminal operation such as
+ * `selectPrice()` or `groupByUser().sum()` is evaluated. The predicates are pushed
+ * down to the store: blocks whose timestamp range misses the query range are skipped
+ * without reading any column, blocks fully inside the range skip the timestamp check,
+ * and only the columns a query needs are ever touched.
+ */
+public class OrderQuery {
+	private static final int SKIP = 0;
+	private static final int PARTIAL = 1;
+	private static final int ALL = 2;
+
+	private final OrderStore store;
+	private final long fromTimestamp;
+	private final long toTimestamp;
+	private final boolean[] userMask;
+
+	OrderQuery(OrderStore store) {
+		this(store, Long.MIN_VALUE, Long.MAX_VALUE, null);
+	}
+	private OrderQuery(OrderStore store, long fromTimestamp, long toTimestamp, boolean[] userMask) {
+		this.store = store;
+		this.fromTimestamp = fromTimestamp;
+		this.toTimestamp = toTimestamp;
+		this.userMask = userMask;
+	}
+	/**
+	 * restricts the query to orders whose timestamp lies in `[fromTimestamp, toTimestamp]`.
+	 * Calling it again narrows the range to the intersection of both ranges.
+	 *
+	 * @param fromTimestamp smallest accepted timestamp, inclusive.
+	 *
+	 * @param toTimestamp largest accepted timestamp, inclusive.
+	 *
+	 * @returns a new query with the additional timestamp predicate.
+	 */
+	public OrderQuery where(long fromTimestamp, long toTimestamp){
+		return new OrderQuery(store,
+				Math.max(this.fromTimestamp, fromTimestamp),
+				Math.min(this.toTimestamp, toTimestamp),
+				userMask);
+	}
+	/**
+	 * restricts the query to orders of the given users. User names that do not occur
+	 * in the store are ignored. Calling it again keeps only users present in both sets.
+	 *
+	 * @param userNames user names whose orders are accepted.
+	 *
+	 * @returns a new query with the additional user predicate.
+	 */
+	public OrderQuery where(Collection<String> userNames){
+		boolean[] mask = new boolean[store.userCount()];
+		for(String userName : userNames){
+			int id = store.userId(userName);
+			if(id >= 0 && (userMask == null || userMask[id])){
+				mask[id] = true;
+			}
+		}
+		return new OrderQuery(store, fromTimestamp, toTimestamp, mask);
+	}
+	/**
+	 * projects the matching orders onto their price. Only the price column, and the
+	 * user and timestamp columns when a predicate needs them, are read.
+	 *
+	 * @returns a lazy, splittable `DoubleStream` of the prices of all matching orders.
+	 */
+	public DoubleStream selectPrice(){
+		return StreamSupport.doubleStream(
+				new PriceSpliterator(0, store.blocks().length), false);
+	}
+	/**
+	 * groups the matching orders by user name.
+	 *
+	 * @returns a `Grouped` view whose terminal operations aggregate per user.
+	 */
+	public Grouped groupByUser(){
+		return new Grouped();
+	}
+	/**
+	 * compares a block's zone map with the timestamp range of the query.
+	 *
+	 * @param b block to classify.
+	 *
+	 * @returns `SKIP` if no row can match, `ALL` if every row is inside the range, and
+	 * `PARTIAL` if the timestamp of each row has to be checked.
+	 */
+	private int scan(OrderStore.Block b){
+		if(b.maxTimestamp < fromTimestamp || b.minTimestamp > toTimestamp)
+			return SKIP;
+		if(b.minTimestamp >= fromTimestamp && b.maxTimestamp <= toTimestamp)
+			return ALL;
+		return PARTIAL;
+	}
+	/**
+	 * evaluates the predicates of the query on a single row.
+	 *
+	 * @param b block holding the row.
+	 *
+	 * @param i index of the row inside the block.
+	 *
+	 * @param checkTime whether the timestamp column must be read, i.e. whether the
+	 * block was classified as `PARTIAL`.
+	 *
+	 * @returns true if the row matches the query.
+	 */
+	private boolean matches(OrderStore.Block b, int i, boolean checkTime){
+		if(checkTime){
+			long ts = b.timestamps[i];
+			if(ts < fromTimestamp || ts > toTimestamp)
+				return false;
+		}
+		return userMask == null || userMask[b.users[i]];
+	}
+
+	/**
+	 * is the result of `groupByUser()`, aggregating the matching orders per user.
+	 */
+	public class Grouped {
+		/**
+		 * sums the price of the matching orders for each user. Blocks are scanned once,
+		 * summing into an array indexed by user id, and only users with at least one
+		 * matching order are decoded into the result.
+		 *
+		 * @returns a map from user name to the total price of that user's matching orders.
+		 */
+		public Map<String, Double> sum(){
+			double[] sums = new double[store.userCount()];
+			boolean[] seen = new boolean[sums.length];
+			for(OrderStore.Block b : store.blocks()){
+				int scan = scan(b);
+				if(scan == SKIP)
+					continue;
+				int[] users = b.users;
+				double[] prices = b.prices;
+				if(scan == ALL && userMask == null){
+					for(int i=0; i<b.length; i++){
+						sums[users[i]] += prices[i];
+						seen[users[i]] = true;
+					}
+				}else{
+					boolean checkTime = scan == PARTIAL;
+					for(int i=0; i<b.length; i++){
+						if(matches(b, i, checkTime)){
+							sums[users[i]] += prices[i];
+							seen[users[i]] = true;
+						}
+					}
+				}
+			}
+			Map<String, Double> map = new HashMap<>();
+			for(int id=0; id<sums.length; id++){
+				if(seen[id]){
+					map.put(store.userName(id), sums[id]);
+				}
+			}
+			return map;
+		}
+	}
+
+	/**
+	 * pulls the prices of matching rows out of a range of blocks. It splits on block
+	 * boundaries, so a parallel stream hands whole blocks to each worker.
+	 */
+	private class PriceSpliterator implements Spliterator.OfDouble {
+		private int block;
+		private final int endBlock;
+		private int row;
+		private int scan = -1;
+
+		PriceSpliterator(int block, int endBlock) {
+			this.block = block;
+			this.endBlock = endBlock;
+		}
+		@Override
+		public boolean tryAdvance(DoubleConsumer action){
+			OrderStore.Block[] blocks = store.blocks();
+			while(block < endBlock){
+				OrderStore.Block b = blocks[block];
+				if(scan < 0)
+					scan = scan(b);
+				if(scan != SKIP){
+					boolean checkTime = scan == PARTIAL;
+					while(row < b.length){
+						int i = row++;
+						if(matches(b, i, checkTime)){
+							action.accept(b.prices[i]);
+							return true;
+						}
+					}
+				}
+				block++;
+				row = 0;
+				scan = -1;
+			}
+			return false;
+		}
+		@Override
+		public void forEachRemaining(DoubleConsumer action){
+			OrderStore.Block[] blocks = store.blocks();
+			for(; block<endBlock; block++, row=0, scan=-1){
+				OrderStore.Block b = blocks[block];
+				if(scan < 0)
+					scan = scan(b);
+				if(scan == SKIP)
+					continue;
+				double[] prices = b.prices;
+				if(scan == ALL && userMask == null){
+					for(; row<b.length; row++){
+						action.accept(prices[row]);
+					}
+				}else{
+					boolean checkTime = scan == PARTIAL;
+					for(; row<b.length; row++){
+						if(matches(b, row, checkTime))
+							action.accept(prices[row]);
+					}
+				}
+			}
+		}
+		@Override
+		public Spliterator.OfDouble trySplit(){
+			if(endBlock-block < 2)
+				return null;
+			int mid = (block+endBlock) >>> 1;
+			PriceSpliterator prefix = new PriceSpliterator(block, mid);
+			prefix.row = row;
+			prefix.scan = scan;
+			block = mid;
+			row = 0;
+			scan = -1;
+			return prefix;
+		}
+		@Override
+		public long estimateSize(){
+			return (long)(endBlock-block)*OrderStore.BLOCK_SIZE-row;
+		}
+		@Override
+		public int characteristics(){
+			return ORDERED | NONNULL | IMMUTABLE;
+		}
+	}
+}
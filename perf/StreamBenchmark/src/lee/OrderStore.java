@@ -0,0 +1,142 @@
+package lee;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * is a read-only, column-oriented copy of a list of `Order` objects. Orders are cut
+ * into fixed-size blocks, and every block keeps the user, price and timestamp of its
+ * rows in separate primitive arrays together with the minimum and maximum timestamp
+ * of the block (a zone map). User names are dictionary encoded, so a row only stores
+ * an `int` id. Queries over the store are built with `query()`.
+ */
+public class OrderStore {
+	static final int BLOCK_SIZE = 4096;
+
+	private final String[] userNames;
+	private final Map<String, Integer> userIds;
+	private final Block[] blocks;
+	private final int size;
+
+	private OrderStore(String[] userNames, Map<String, Integer> userIds, Block[] blocks, int size) {
+		this.userNames = userNames;
+		this.userIds = userIds;
+		this.blocks = blocks;
+		this.size = size;
+	}
+	/**
+	 * builds a store from a list of orders, encoding each column block by block and
+	 * recording the timestamp range of every block.
+	 *
+	 * @param orders list of orders to copy into the store, typically produced by
+	 * `Order.genOrders()`.
+	 *
+	 * @returns a new `OrderStore` holding the same orders in their original order.
+	 */
+	public static OrderStore of(List<Order> orders){
+		Map<String, Integer> ids = new HashMap<>();
+		int blockCount = (orders.size()+BLOCK_SIZE-1)/BLOCK_SIZE;
+		Block[] blocks = new Block[blockCount];
+		int pos = 0;
+		for(int b=0; b<blockCount; b++){
+			int length = Math.min(BLOCK_SIZE, orders.size()-pos);
+			int[] users = new int[length];
+			double[] prices = new double[length];
+			long[] timestamps = new long[length];
+			long min = Long.MAX_VALUE;
+			long max = Long.MIN_VALUE;
+			for(int i=0; i<length; i++, pos++){
+				Order od = orders.get(pos);
+				Integer id = ids.get(od.getUserName());
+				if(id == null){
+					id = ids.size();
+					ids.put(od.getUserName(), id);
+				}
+				users[i] = id;
+				prices[i] = od.getPrice();
+				long ts = od.getTimestamp();
+				timestamps[i] = ts;
+				min = Math.min(min, ts);
+				max = Math.max(max, ts);
+			}
+			blocks[b] = new Block(length, users, prices, timestamps, min, max);
+		}
+		String[] names = new String[ids.size()];
+		for(Map.Entry<String, Integer> e : ids.entrySet()){
+			names[e.getValue()] = e.getKey();
+		}
+		return new OrderStore(names, ids, blocks, orders.size());
+	}
+	/**
+	 * starts a new lazy query over all orders of this store. Nothing is read until a
+	 * terminal operation of the query is called.
+	 *
+	 * @returns an `OrderQuery` without any predicate.
+	 */
+	public OrderQuery query(){
+		return new OrderQuery(this);
+	}
+	/**
+	 * returns the number of orders held by the store.
+	 *
+	 * @returns the number of orders.
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * returns the number of distinct users in the store.
+	 *
+	 * @returns the size of the user dictionary.
+	 */
+	int userCount(){
+		return userNames.length;
+	}
+	/**
+	 * looks up the dictionary id of a user name.
+	 *
+	 * @param userName user name to look up.
+	 *
+	 * @returns the id of the user, or -1 if no order of the store belongs to that user.
+	 */
+	int userId(String userName){
+		Integer id = userIds.get(userName);
+		return id == null ? -1 : id;
+	}
+	/**
+	 * decodes a dictionary id back to its user name.
+	 *
+	 * @param userId id previously returned by `userId()` or stored in a block.
+	 *
+	 * @returns the user name for the id.
+	 */
+	String userName(int userId){
+		return userNames[userId];
+	}
+	Block[] blocks(){
+		return blocks;
+	}
+
+	/**
+	 * is one block of the store: up to `BLOCK_SIZE` rows stored column by column, plus
+	 * the smallest and largest timestamp found in the block.
+	 */
+	static final class Block {
+		final int length;
+		final int[] users;
+		final double[] prices;
+		final long[] timestamps;
+		final long minTimestamp;
+		final long maxTimestamp;
+
+		Block(int length, int[] users, double[] prices, long[] timestamps, long minTimestamp, long maxTimestamp) {
+			this.length = length;
+			this.users = users;
+			this.prices = prices;
+			this.timestamps = timestamps;
+			this.minTimestamp = minTimestamp;
+			this.maxTimestamp = maxTimestamp;
+		}
+	}
+}
@@ -0,0 +1,223 @@
+package lee;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * compares a filtering `sumOrderStream` over a list of `Order` objects with the same
+ * query evaluated by `OrderQuery` over an `OrderStore`. For every list length it runs
+ * a selective query, whose timestamp range covers 1% of the orders, a full scan without
+ * predicates and a query restricted to a set of users, and checks that both approaches
+ * return the same per-user totals. The selective range is also summed through
+ * `selectPrice()`, sequentially and in parallel, and compared with a filtering stream.
+ */
+public class QueryTest {
+
+	/**
+	 * calls the `doTest()` method, which runs the benchmark.
+	 *
+	 * @param args command line arguments, not used.
+	 */
+	public static void main(String[] args) {
+		new QueryTest().doTest();
+	}
+	/**
+	 * generates orders of increasing length, builds an `OrderStore` for each list and
+	 * measures the selective and full-scan queries with both the stream and the store.
+	 */
+	public void doTest(){
+		warmUp();
+		int[] lengths = {
+				10000,
+				100000,
+				1000000,
+				10000000,
+				20000000,
+				40000000
+			};
+		for(int length : lengths){
+			System.out.println(String.format("---orders length: %d---", length));
+			List<Order> orders = Order.genOrders(length);
+			OrderStore store = OrderStore.of(orders);
+			long from = orders.get(length/2).getTimestamp();
+			long to = orders.get(length/2 + length/100).getTimestamp();
+			Set<String> users = selectUsers(orders);
+			int times = 4;
+			Map<String, Double> map1 = null;
+			Map<String, Double> map2 = null;
+			Map<String, Double> map3 = null;
+			Map<String, Double> map4 = null;
+			Map<String, Double> map5 = null;
+			Map<String, Double> map6 = null;
+			double sum1 = 1;
+			double sum2 = 2;
+			double sum3 = 3;
+
+			long startTime;
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map1 = sumOrderStream(orders, from, to);
+			}
+			TimeUtil.outTimeUs(startTime, "selective sumOrderStream time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map2 = sumOrderQuery(store, from, to);
+			}
+			TimeUtil.outTimeUs(startTime, "selective sumOrderQuery time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map3 = sumOrderStream(orders, Long.MIN_VALUE, Long.MAX_VALUE);
+			}
+			TimeUtil.outTimeUs(startTime, "full scan sumOrderStream time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map4 = store.query().groupByUser().sum();
+			}
+			TimeUtil.outTimeUs(startTime, "full scan sumOrderQuery time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map5 = sumOrderStream(orders, users);
+			}
+			TimeUtil.outTimeUs(startTime, "users sumOrderStream time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				map6 = store.query().where(users).groupByUser().sum();
+			}
+			TimeUtil.outTimeUs(startTime, "users sumOrderQuery time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				sum1 = sumPriceStream(orders, from, to);
+			}
+			TimeUtil.outTimeUs(startTime, "selective sumPriceStream time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				sum2 = store.query().where(from, to).selectPrice().sum();
+			}
+			TimeUtil.outTimeUs(startTime, "selective selectPrice time:", times);
+
+			startTime = System.nanoTime();
+			for(int i=0; i<times; i++){
+				sum3 = store.query().where(from, to).selectPrice().parallel().sum();
+			}
+			TimeUtil.outTimeUs(startTime, "selective selectPrice parallel time:", times);
+
+			System.out.println(map1.equals(map2) && map3.equals(map4) && map5.equals(map6)
+					&& sum1 == sum2 && sum2 == sum3);
+			System.out.println("selected users=" + map2.size() + ", users=" + map4.size());
+		}
+	}
+	/**
+	 * runs the selective, full-scan, user-set and price variants of the queries 20000
+	 * times on a small list so that they are compiled before measuring.
+	 */
+	private void warmUp(){
+		List<Order> orders = Order.genOrders(10);
+		OrderStore store = OrderStore.of(orders);
+		long from = orders.get(2).getTimestamp();
+		long to = orders.get(7).getTimestamp();
+		Set<String> users = selectUsers(orders);
+		for(int i=0; i<20000; i++){
+			sumOrderStream(orders, from, to);
+			sumOrderQuery(store, from, to);
+			store.query().groupByUser().sum();
+			sumOrderStream(orders, users);
+			store.query().where(users).groupByUser().sum();
+			sumPriceStream(orders, from, to);
+			store.query().where(from, to).selectPrice().sum();
+			store.query().where(from, to).selectPrice().parallel().sum();
+
+		}
+	}
+	/**
+	 * filters the orders by timestamp and sums the prices per user with a sequential
+	 * stream, decoding every `Order` object in the list.
+	 *
+	 * @param orders list of orders to aggregate.
+	 *
+	 * @param from smallest accepted timestamp, inclusive.
+	 *
+	 * @param to largest accepted timestamp, inclusive.
+	 *
+	 * @returns a map of user names to the total price of their orders within the range.
+	 */
+	private Map<String, Double> sumOrderStream(List<Order> orders, long from, long to){
+		return orders.stream()
+				.filter(od -> od.getTimestamp() >= from && od.getTimestamp() <= to)
+				.collect(Collectors.groupingBy(Order::getUserName,
+						Collectors.summingDouble(Order::getPrice)));
+	}
+	/**
+	 * evaluates the same aggregation as `sumOrderStream()` on the column store, letting
+	 * the zone maps skip blocks outside the timestamp range.
+	 *
+	 * @param store column store holding the orders.
+	 *
+	 * @param from smallest accepted timestamp, inclusive.
+	 *
+	 * @param to largest accepted timestamp, inclusive.
+	 *
+	 * @returns a map of user names to the total price of their orders within the range.
+	 */
+	private Map<String, Double> sumOrderQuery(OrderStore store, long from, long to){
+		return store.query().where(from, to).groupByUser().sum();
+	}
+	/**
+	 * filters the orders by user and sums the prices per user with a sequential stream.
+	 *
+	 * @param orders list of orders to aggregate.
+	 *
+	 * @param users user names whose orders are accepted.
+	 *
+	 * @returns a map of the given user names to the total price of their orders.
+	 */
+	private Map<String, Double> sumOrderStream(List<Order> orders, Set<String> users){
+		return orders.stream()
+				.filter(od -> users.contains(od.getUserName()))
+				.collect(Collectors.groupingBy(Order::getUserName,
+						Collectors.summingDouble(Order::getPrice)));
+	}
+	/**
+	 * filters the orders by timestamp and sums their prices with a sequential stream,
+	 * the list counterpart of `selectPrice().sum()`.
+	 *
+	 * @param orders list of orders to sum.
+	 *
+	 * @param from smallest accepted timestamp, inclusive.
+	 *
+	 * @param to largest accepted timestamp, inclusive.
+	 *
+	 * @returns the total price of the orders within the range.
+	 */
+	private double sumPriceStream(List<Order> orders, long from, long to){
+		return orders.stream()
+				.filter(od -> od.getTimestamp() >= from && od.getTimestamp() <= to)
+				.mapToDouble(Order::getPrice)
+				.sum();
+	}
+	/**
+	 * picks the users of every tenth order among the first thousand orders, a small
+	 * subset of all users for the user-set queries.
+	 *
+	 * @param orders list of orders to pick users from.
+	 *
+	 * @returns a set of user names occurring in the list.
+	 */
+	private Set<String> selectUsers(List<Order> orders){
+		Set<String> users = new HashSet<>();
+		for(int i=0; i<orders.size() && i<1000; i+=10){
+			users.add(orders.get(i).getUserName());
+		}
+		return users;
+	}
+}
@@ -1,11 +1,8 @@
 package lee;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 /**
@@ -163,7 +160,7 @@ public class ReductionTest {
 	 * user name using `Collectors.groupingBy`, and then summing the prices of all orders
 	 * within each group using `Collectors.summingDouble`.
 	 */
-	private Map<String, Double> sumOrderStream(List<Order> orders){
+	Map<String, Double> sumOrderStream(List<Order> orders){
 		return orders.stream().collect(
 				Collectors.groupingBy(Order::getUserName, 
 						Collectors.summingDouble(Order::getPrice)));
@@ -200,94 +197,3 @@ public class ReductionTest {
 						Collectors.summingDouble(Order::getPrice)));
 	}
 }
-/**
- * has several methods for generating and manipulating orders. These include:
- * 
- * 	- `genOrders()`: Generates a list of orders with random user names, prices, and
- * timestamps.
- * 	- `toString()`: Returns a string representation of an order in the format "user
- * name::price".
- */
-class Order{
-	private String userName;
-	private double price;
-	private long timestamp;
-	public Order(String userName, double price, long timestamp) {
-		this.userName = userName;
-		this.price = price;
-		this.timestamp = timestamp;
-	}
-	/**
-	 * returns a string representing the user's name.
-	 * 
-	 * @returns a string representing the user's name.
-	 */
-	public String getUserName() {
-		return userName;
-	}
-	/**
-	 * returns the `price` attribute value.
-	 * 
-	 * @returns the value of the `price` field.
-	 */
-	public double getPrice() {
-		return price;
-	}
-	/**
-	 * returns the current timestamp value stored in the `timestamp` field.
-	 * 
-	 * @returns a long value representing the current timestamp.
-	 */
-	public long getTimestamp() {
-		return timestamp;
-	}
-	/**
-	 * generates a list of `Order` objects based on user input parameters. It creates a
-	 * random number of users, and for each user, it generates a unique name and adds an
-	 * order with a randomly generated price and creation time. The resulting list of
-	 * orders is returned.
-	 * 
-	 * @param listLength total number of orders to be generated in the function, and it
-	 * is used to determine the number of users and the size of the list returned by the
-	 * function.
-	 * 
-	 * @returns a list of `Order` objects, each representing an order with a unique user
-	 * name, price, and timestamp.
-	 * 
-	 * 	- `List<Order>`: The function returns a list of orders.
-	 * 	- `Order`: Each element in the list is an instance of the `Order` class, representing
-	 * a single order.
-	 * 	- `String userName`: Each order has a unique user name associated with it.
-	 * 	- `double price`: Each order has a randomly generated price between 1 and 1000.
-	 * 	- `long timestamp`: Each order has a timestamp in nanoseconds representing when
-	 * the order was created.
-	 */
-	public static List<Order> genOrders(int listLength){
-		ArrayList<Order> list = new ArrayList<>(listLength);
-		Random rand = new Random();
-		int users = listLength/200;// 200 orders per user
-		users = users==0 ? listLength : users;
-		ArrayList<String> userNames = new ArrayList<>(users);
-		for(int i=0; i<users; i++){
-			userNames.add(UUID.randomUUID().toString());
-		}
-		for(int i=0; i<listLength; i++){
-			double price = rand.nextInt(1000);
-			String userName = userNames.get(rand.nextInt(users));
-			list.add(new Order(userName, price, System.nanoTime()));
-		}
-		return list;
-	}
-	/**
-	 * generates a string representation of an object by combining the user name and price.
-	 * 
-	 * @returns a string consisting of the user name followed by a colon and then the price.
-	 * 
-	 * 	- `userName`: A string value representing the user's name.
-	 * 	- `price`: An integer value representing the price of the item.
-	 */
-	@Override
-	public String toString(){
-		return userName + "::" + price;
-	}
-}
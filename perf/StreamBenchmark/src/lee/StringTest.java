@@ -124,7 +124,7 @@ public class StringTest {
 	 * 
 	 * @returns the minimum string in the input list.
 	 */
-	private String minStringStream(ArrayList<String> list){
+	String minStringStream(ArrayList<String> list){
 		return list.stream().min(String::compareTo).get();
 	}
 	/**
@@ -171,7 +171,7 @@ public class StringTest {
 	 * `add` method.
 	 * 	- The function returns the ArrayList of strings.
 	 */
-	private ArrayList<String> randomStringList(int listLength){
+	ArrayList<String> randomStringList(int listLength){
 		ArrayList<String> list = new ArrayList<>(listLength);
 		Random rand = new Random();
 		int strLength = 10;
@@ -0,0 +1,245 @@
+package lee;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * measures the startup and warmup cost of the workloads used by `IntTest`,
+ * `StringTest` and `ReductionTest`. Started with a workload name, it runs that
+ * workload in the current JVM and reports the time to first result, measured from
+ * JVM start, and how many iterations it takes to reach steady state. Started without
+ * arguments, it launches a fresh JVM for every workload and every JVM profile, so
+ * cold-start cost can be compared between the default JVM, a C1-only tiered
+ * compilation profile and an application class-data-sharing (AppCDS) archive.
+ */
+public class WarmupLauncher {
+	private static final String[] WORKLOADS = {
+			"minIntStream",
+			"minStringStream",
+			"sumOrderStream"
+		};
+	private static final int ITERATIONS = 100000;
+	private static final int WINDOW = 1000;
+	private static final int SMOOTHING = 5;
+	private static final double TOLERANCE = 0.25;
+
+	private static volatile Object sink;
+
+	/**
+	 * measures a single workload in this JVM when a workload name is given, otherwise
+	 * launches every workload under every JVM profile.
+	 *
+	 * @param args optional workload name, one of `minIntStream`, `minStringStream`
+	 * and `sumOrderStream`.
+	 *
+	 * @throws Exception if a child JVM cannot be started or is interrupted.
+	 */
+	public static void main(String[] args) throws Exception {
+		if(args.length > 0){
+			measure(args[0]);
+		}else{
+			launchAll();
+		}
+	}
+	/**
+	 * runs every workload in its own JVM, once per profile. The CDS profile first runs
+	 * the workload with `-XX:ArchiveClassesAtExit` to dump an archive of the loaded
+	 * classes and then measures a second run started from that archive. Dynamic
+	 * archives need JDK 13 or later and a classpath made of jar files only, so the CDS
+	 * profiles are skipped on older JVMs and when the benchmark runs from a class
+	 * directory.
+	 *
+	 * @throws IOException if a child JVM cannot be started.
+	 *
+	 * @throws InterruptedException if waiting for a child JVM is interrupted.
+	 */
+	private static void launchAll() throws IOException, InterruptedException {
+		System.out.println("---profile: default---");
+		for(String workload : WORKLOADS){
+			launch(workload);
+		}
+		System.out.println("---profile: tiered C1 only (-XX:TieredStopAtLevel=1)---");
+		for(String workload : WORKLOADS){
+			launch(workload, "-XX:TieredStopAtLevel=1");
+		}
+		if(javaVersion() < 13){
+			System.out.println("---profile: AppCDS skipped, dynamic archives need JDK 13 or later"
+					+ " (running " + System.getProperty("java.specification.version") + ")---");
+			return;
+		}
+		if(!jarOnlyClasspath()){
+			System.out.println("---profile: AppCDS skipped, classpath must contain only jar files"
+					+ " (e.g. jar cf StreamBenchmark.jar -C bin .)---");
+			return;
+		}
+		System.out.println("---profile: AppCDS archive dump (-XX:ArchiveClassesAtExit)---");
+		File dir = new File(System.getProperty("java.io.tmpdir"));
+		for(String workload : WORKLOADS){
+			File archive = new File(dir, "StreamBenchmark-" + workload + ".jsa");
+			archive.delete();
+			launch(workload, "-XX:ArchiveClassesAtExit=" + archive.getPath());
+		}
+		System.out.println("---profile: AppCDS archive (-XX:SharedArchiveFile)---");
+		for(String workload : WORKLOADS){
+			File archive = new File(dir, "StreamBenchmark-" + workload + ".jsa");
+			launch(workload, "-XX:SharedArchiveFile=" + archive.getPath());
+		}
+	}
+	/**
+	 * returns the major Java version of this JVM, parsed from `java.specification.version`,
+	 * which is `1.8` up to Java 8 and `9`, `10`, ... afterwards.
+	 *
+	 * @returns the major Java version, e.g. 8 or 17.
+	 */
+	private static int javaVersion(){
+		String version = System.getProperty("java.specification.version");
+		if(version.startsWith("1."))
+			version = version.substring(2);
+		return Integer.parseInt(version);
+	}
+	/**
+	 * checks whether every classpath entry of this JVM is a file, which CDS requires
+	 * for dumping and using an application archive.
+	 *
+	 * @returns true if the classpath contains no directories.
+	 */
+	private static boolean jarOnlyClasspath(){
+		for(String entry : System.getProperty("java.class.path").split(File.pathSeparator)){
+			if(new File(entry).isDirectory())
+				return false;
+		}
+		return true;
+	}
+	/**
+	 * starts a new JVM with the same classpath that measures one workload, and waits
+	 * for it to exit. The output of the child is written to this process' console.
+	 *
+	 * @param workload name of the workload to measure.
+	 *
+	 * @param jvmOptions extra options passed to the child JVM.
+	 *
+	 * @throws IOException if the child JVM cannot be started.
+	 *
+	 * @throws InterruptedException if waiting for the child JVM is interrupted.
+	 */
+	private static void launch(String workload, String... jvmOptions) throws IOException, InterruptedException {
+		List<String> cmd = new ArrayList<>();
+		cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		cmd.addAll(Arrays.asList(jvmOptions));
+		cmd.add("-cp");
+		cmd.add(System.getProperty("java.class.path"));
+		cmd.add(WarmupLauncher.class.getName());
+		cmd.add(workload);
+		int exit = new ProcessBuilder(cmd).inheritIO().start().waitFor();
+		if(exit != 0){
+			System.out.println(workload + ": failed, exit code " + exit);
+		}
+	}
+	/**
+	 * runs a workload `ITERATIONS` times and reports its warmup behaviour. The calls
+	 * are timed in windows of `WINDOW` iterations. The steady-state time per window is
+	 * the median of the last quarter of the windows. Steady state is reached at the
+	 * first window that is itself at most `TOLERANCE` slower than that, and from which
+	 * on the running median of `SMOOTHING` windows never gets slower either, so single
+	 * GC or compilation pauses later on do not count as warmup, while slow leading
+	 * windows are never averaged away. The JVM start time is read through JMX only
+	 * after measuring, so loading the management classes is not counted as part of the
+	 * workload.
+	 *
+	 * @param workload name of the workload to measure.
+	 */
+	private static void measure(String workload){
+		Supplier<Object> task = workload(workload);
+
+		long startTime = System.nanoTime();
+		sink = task.get();
+		long firstNs = System.nanoTime()-startTime;
+		long firstResultTime = System.currentTimeMillis();
+
+		int windows = (ITERATIONS-1)/WINDOW;
+		long[] windowNs = new long[windows];
+		long[] windowEndNs = new long[windows];
+		for(int w=0; w<windows; w++){
+			long windowStart = System.nanoTime();
+			for(int i=0; i<WINDOW; i++){
+				sink = task.get();
+			}
+			long now = System.nanoTime();
+			windowNs[w] = now-windowStart;
+			windowEndNs[w] = now-startTime;
+		}
+
+		long firstResultMs = firstResultTime-ManagementFactory.getRuntimeMXBean().getStartTime();
+		long steadyNs = median(windowNs, windows-windows/4, windows);
+		int steady = windows-SMOOTHING;
+		while(steady > 0 && median(windowNs, steady-1, steady-1+SMOOTHING) <= steadyNs*(1+TOLERANCE)){
+			steady--;
+		}
+		while(steady < windows && windowNs[steady] > steadyNs*(1+TOLERANCE)){
+			steady++;
+		}
+		int steadyIterations = 1 + steady*WINDOW;
+		long steadyStartNs = steady == 0 ? firstNs : windowEndNs[steady-1];
+
+		System.out.println(String.format(
+				"%s: first result %d ms after JVM start (first call %.2f us), "
+				+ "steady state after %d iterations (%d ms after JVM start), "
+				+ "first window avg %.2f us, steady avg %.2f us",
+				workload, firstResultMs, firstNs/1000.0,
+				steadyIterations, firstResultMs + (steadyStartNs-firstNs)/1000000,
+				windowNs[0]/1000.0/WINDOW, steadyNs/1000.0/WINDOW));
+	}
+	/**
+	 * returns the median of a range of an array without modifying the array.
+	 *
+	 * @param values array holding the values.
+	 *
+	 * @param from index of the first value, inclusive.
+	 *
+	 * @param to index of the last value, exclusive.
+	 *
+	 * @returns the median of `values[from]` to `values[to-1]`.
+	 */
+	private static long median(long[] values, int from, int to){
+		long[] range = Arrays.copyOfRange(values, from, to);
+		Arrays.sort(range);
+		return range[range.length/2];
+	}
+	/**
+	 * creates the input of a workload, using the same sizes as the `warmUp()` methods of
+	 * the benchmarks, and returns a task that runs the workload once.
+	 *
+	 * @param name name of the workload.
+	 *
+	 * @returns a task calling `IntTest.minIntStream`, `StringTest.minStringStream` or
+	 * `ReductionTest.sumOrderStream` on its input.
+	 */
+	private static Supplier<Object> workload(String name){
+		switch(name){
+		case "minIntStream": {
+			IntTest test = new IntTest();
+			int[] arr = new int[100];
+			test.randomInt(arr);
+			return () -> test.minIntStream(arr);
+		}
+		case "minStringStream": {
+			StringTest test = new StringTest();
+			ArrayList<String> list = test.randomStringList(10);
+			return () -> test.minStringStream(list);
+		}
+		case "sumOrderStream": {
+			ReductionTest test = new ReductionTest();
+			List<Order> orders = Order.genOrders(10);
+			return () -> test.sumOrderStream(orders);
+		}
+		default:
+			throw new IllegalArgumentException("unknown workload: " + name
+					+ ", expected one of " + Arrays.toString(WORKLOADS));
+		}
+	}
+}